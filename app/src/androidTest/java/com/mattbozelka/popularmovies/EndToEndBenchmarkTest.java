@@ -0,0 +1,359 @@
+package com.mattbozelka.popularmovies;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.test.InstrumentationRegistry;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.View;
+import android.widget.GridView;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.io.File;
+
+/**
+ * Drives MainActivity -> MovieListFragment -> MovieDetailActivity against the
+ * local {@link StandInServer} and reports how long the user waits.
+ *
+ * <p>Each metric is written to logcat under the PopularMoviesBenchmark tag and sent
+ * as an instrumentation status, so it shows up in the output of
+ * {@code adb shell am instrument -w -r -e class com.mattbozelka.popularmovies.EndToEndBenchmarkTest ...}.
+ * The stand-in server is configured with the arguments listed in
+ * {@link StandInServer.Config}. Pass {@code -e tmdbApiBaseUrl} and/or
+ * {@code -e tmdbImageBaseUrl} to measure against another server instead, the
+ * stand-in keeps serving whichever of the two is not given.</p>
+ *
+ * <p>Latencies are sampled as soon as the first poster shows. Transfer totals
+ * are sampled once the stand-in has been idle for {@link #IDLE_MS}, so they
+ * include the remaining poster loads and background refreshes of a scenario,
+ * and counters are only reset once earlier traffic has settled.</p>
+ *
+ * <p>The first launch runs in the same process as the other tests, so Picasso,
+ * class loading and the JIT may already be warm. Only the snapshot and the
+ * poster urls are fresh, which is why it is reported as
+ * {@code first_launch_in_process_*} rather than as a cold start.</p>
+ */
+public class EndToEndBenchmarkTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    static final String BENCHMARK_TAG = "PopularMoviesBenchmark";
+    static final int REPORT_STATUS = 2;
+    private static final long TIMEOUT_MS = 30000;
+    private static final long IDLE_MS = 1000;
+
+    private Context context;
+    private SharedPreferences prefs;
+    private StandInServer server;
+    private String apiBaseUrl;
+    private String imageBaseUrl;
+
+    public EndToEndBenchmarkTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        injectInstrumentation(InstrumentationRegistry.getInstrumentation());
+        context = getInstrumentation().getTargetContext();
+        prefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        Bundle args = InstrumentationRegistry.getArguments();
+        apiBaseUrl = args.getString("tmdbApiBaseUrl");
+        imageBaseUrl = args.getString("tmdbImageBaseUrl");
+        if (apiBaseUrl == null || imageBaseUrl == null) {
+            server = new StandInServer(getInstrumentation().getContext().getAssets(),
+                    StandInServer.Config.fromArguments(args));
+            server.start();
+            if (apiBaseUrl == null) {
+                apiBaseUrl = server.getApiBaseUrl();
+            }
+        }
+
+        prefs.edit()
+                .putString(context.getString(R.string.display_preferences_sort_order_key),
+                        context.getString(R.string.display_preferences_sort_default_value))
+                .commit();
+        useFreshImageUrls();
+        deleteSnapshots();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        prefs.edit()
+                .remove(context.getString(R.string.endpoint_api_base_url_key))
+                .remove(context.getString(R.string.endpoint_image_base_url_key))
+                .remove(context.getString(R.string.display_preferences_sort_order_key))
+                .commit();
+        deleteSnapshots();
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    public void testFirstLaunchAndWarmTimeToFirstPoster() throws Exception {
+        resetCounters();
+        long start = SystemClock.uptimeMillis();
+        MainActivity activity = getActivity();
+        waitForFirstPoster(activity, null);
+        report("first_launch_in_process_time_to_first_poster_ms", SystemClock.uptimeMillis() - start);
+        reportTransfer("first_launch_in_process");
+
+        // the snapshot and Picasso's memory cache are now warm
+        relaunch();
+        resetCounters();
+        start = SystemClock.uptimeMillis();
+        activity = getActivity();
+        waitForFirstPoster(activity, null);
+        report("warm_time_to_first_poster_ms", SystemClock.uptimeMillis() - start);
+        reportTransfer("warm");
+    }
+
+    public void testSortSwitchLatency() throws Exception {
+        MainActivity activity = getActivity();
+        waitForFirstPoster(activity, null);
+        String previousPoster = firstPoster(activity);
+
+        // the same round trip as picking a new sort order from the settings menu
+        Instrumentation.ActivityMonitor monitor = getInstrumentation().addMonitor(
+                SettingsActivity.class.getName(), null, false);
+        activity.startActivity(new Intent(activity, SettingsActivity.class));
+        Activity settings = getInstrumentation().waitForMonitorWithTimeout(monitor, TIMEOUT_MS);
+        getInstrumentation().removeMonitor(monitor);
+        assertNotNull("SettingsActivity did not start", settings);
+        prefs.edit()
+                .putString(context.getString(R.string.display_preferences_sort_order_key),
+                        context.getString(R.string.sort_array_item_2_value))
+                .commit();
+
+        resetCounters();
+        long start = SystemClock.uptimeMillis();
+        settings.finish();
+        waitForFirstPoster(activity, previousPoster);
+        report("sort_switch_ms", SystemClock.uptimeMillis() - start);
+        reportTransfer("sort_switch");
+    }
+
+    /*
+    * On a two pane device both paths are timed so the in place rebind
+    * and the activity launch are compared on the same hardware
+    * */
+    public void testDetailOpenLatency() throws Exception {
+        final MainActivity activity = getActivity();
+        waitForFirstPoster(activity, null);
+        final GridView grid = (GridView) activity.findViewById(R.id.main_movie_grid);
+        ImageAdapter adapter = (ImageAdapter) grid.getAdapter();
+
+        if (activity.findViewById(R.id.movie_detail_container) != null) {
+            int position = 1;
+            String title = adapter.getItem(position).getTitle();
+            resetCounters();
+            long start = SystemClock.uptimeMillis();
+            clickPoster(grid, position);
+            waitForDetail(activity, title);
+            report("detail_open_two_pane_ms", SystemClock.uptimeMillis() - start);
+            reportTransfer("detail_open_two_pane");
+
+            // the activity launch single pane devices use, for a neighbour whose poster is just as warm
+            final Movie movie = adapter.getItem(position + 1);
+            timeDetailActivity(new Runnable() {
+                @Override
+                public void run() {
+                    activity.startActivity(new Intent(activity, MovieDetailActivity.class)
+                            .putExtra(MovieDetailFragment.MOVIE_DETAILS, movie));
+                }
+            }, movie.getTitle());
+            return;
+        }
+
+        int position = 1;
+        timeDetailActivity(posterClick(grid, position), adapter.getItem(position).getTitle());
+    }
+
+    // times launching MovieDetailActivity until it shows the movie's poster
+    private void timeDetailActivity(Runnable launch, String title) throws Exception {
+        Instrumentation.ActivityMonitor monitor = getInstrumentation().addMonitor(
+                MovieDetailActivity.class.getName(), null, false);
+        resetCounters();
+        long start = SystemClock.uptimeMillis();
+        getInstrumentation().runOnMainSync(launch);
+        Activity detail = getInstrumentation().waitForMonitorWithTimeout(monitor, TIMEOUT_MS);
+        getInstrumentation().removeMonitor(monitor);
+        assertNotNull("MovieDetailActivity did not start", detail);
+        waitForDetail(detail, title);
+        report("detail_open_activity_ms", SystemClock.uptimeMillis() - start);
+        reportTransfer("detail_open_activity");
+        detail.finish();
+    }
+
+    private void relaunch() {
+        getActivity().finish();
+        setActivity(null);
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private void useFreshImageUrls() {
+        String url = imageBaseUrl != null ? imageBaseUrl
+                : server.getImageBaseUrl("run" + System.nanoTime());
+        prefs.edit()
+                .putString(context.getString(R.string.endpoint_api_base_url_key), apiBaseUrl)
+                .putString(context.getString(R.string.endpoint_image_base_url_key), url)
+                .commit();
+    }
+
+    private void deleteSnapshots() {
+        File[] files = context.getCacheDir().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith("movies_")) {
+                file.delete();
+            }
+        }
+    }
+
+    private void clickPoster(GridView grid, int position) {
+        getInstrumentation().runOnMainSync(posterClick(grid, position));
+    }
+
+    private Runnable posterClick(final GridView grid, final int position) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                View cell = grid.getChildAt(position - grid.getFirstVisiblePosition());
+                grid.performItemClick(cell, position, grid.getAdapter().getItemId(position));
+            }
+        };
+    }
+
+    private String firstPoster(final Activity activity) {
+        final String[] poster = new String[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                GridView grid = (GridView) activity.findViewById(R.id.main_movie_grid);
+                poster[0] = ((ImageAdapter) grid.getAdapter()).getPoster(0);
+            }
+        });
+        return poster[0];
+    }
+
+    /*
+    * Waits until the first grid cell shows a loaded poster, and when
+    * previousPoster is given, until that cell shows a different movie
+    * */
+    private void waitForFirstPoster(final Activity activity, final String previousPoster)
+            throws InterruptedException {
+        waitFor("first poster", new Condition() {
+            @Override
+            public boolean isMet() {
+                GridView grid = (GridView) activity.findViewById(R.id.main_movie_grid);
+                if (grid == null || grid.getAdapter() == null || grid.getAdapter().getCount() == 0
+                        || grid.isLayoutRequested() || grid.getChildCount() == 0) {
+                    return false;
+                }
+                ImageAdapter adapter = (ImageAdapter) grid.getAdapter();
+                if (previousPoster != null && previousPoster.equals(adapter.getPoster(0))) {
+                    return false;
+                }
+                ImageView poster = (ImageView) grid.getChildAt(0)
+                        .findViewById(R.id.list_item_poster_imageview);
+                return poster.getDrawable() != null;
+            }
+        });
+    }
+
+    private void waitForDetail(final Activity activity, final String title)
+            throws InterruptedException {
+        waitFor("detail poster", new Condition() {
+            @Override
+            public boolean isMet() {
+                TextView titleView = (TextView) activity.findViewById(R.id.movie_title_view);
+                ImageView poster = (ImageView) activity.findViewById(R.id.poster_image_view);
+                return titleView != null && poster != null
+                        && title.equals(titleView.getText().toString())
+                        && poster.getDrawable() != null;
+            }
+        });
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    // polls the condition on the main thread
+    private void waitFor(String what, final Condition condition) throws InterruptedException {
+        final boolean[] met = new boolean[1];
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    met[0] = condition.isMet();
+                }
+            });
+            if (met[0]) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Timed out waiting for " + what);
+    }
+
+    // lets earlier traffic settle so it is not counted in the next scenario
+    private void resetCounters() throws InterruptedException {
+        if (server != null) {
+            waitForServerIdle();
+            server.resetCounters();
+        }
+    }
+
+    // waits for the scenario's traffic to settle, then reports the totals
+    private void reportTransfer(String scenario) throws InterruptedException {
+        if (server != null) {
+            waitForServerIdle();
+            report(scenario + "_bytes", server.getBytesServed());
+            report(scenario + "_requests", server.getRequestCount());
+        }
+    }
+
+    // no request in flight and no change in the totals for IDLE_MS
+    private void waitForServerIdle() throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        long quietSince = SystemClock.uptimeMillis();
+        long bytes = server.getBytesServed();
+        int requests = server.getRequestCount();
+        while (SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(50);
+            long nowBytes = server.getBytesServed();
+            int nowRequests = server.getRequestCount();
+            if (nowBytes != bytes || nowRequests != requests || server.getInFlightCount() > 0) {
+                bytes = nowBytes;
+                requests = nowRequests;
+                quietSince = SystemClock.uptimeMillis();
+            } else if (SystemClock.uptimeMillis() - quietSince >= IDLE_MS) {
+                return;
+            }
+        }
+        fail("Timed out waiting for the stand-in server to go idle");
+    }
+
+    private void report(String metric, long value) {
+        report(getInstrumentation(), metric, Long.toString(value));
+    }
+
+    static void report(Instrumentation instrumentation, String metric, String value) {
+        Log.i(BENCHMARK_TAG, metric + "=" + value);
+        Bundle results = new Bundle();
+        results.putString(metric, value);
+        instrumentation.sendStatus(REPORT_STATUS, results);
+    }
+}
@@ -0,0 +1,246 @@
+package com.mattbozelka.popularmovies;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.test.InstrumentationTestCase;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares restoring a large catalog from a {@link MovieSnapshot}, from a
+ * discover-style JSON file and from SQLite.
+ *
+ * <p>For each format it reports open-to-first-item time and the growth of the
+ * Java heap and of PSS while the opened catalog is held. Results go to the same
+ * logcat tag and instrumentation status as {@link EndToEndBenchmarkTest}'s
+ * latency metrics. The catalog holds 100k movies unless
+ * {@code -e snapshotBenchmarkSize} says otherwise. All three files are written
+ * just before they are read, so the numbers are for a warm page cache.</p>
+ */
+public class SnapshotBenchmarkTest extends InstrumentationTestCase {
+
+    private static final String POSTER_BASE = "http://image.tmdb.org/t/p/w185/";
+
+    private File dir;
+    private List<Movie> movies;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        injectInstrumentation(InstrumentationRegistry.getInstrumentation());
+        Context context = getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "snapshot_benchmark");
+        dir.mkdirs();
+
+        int size = Integer.parseInt(InstrumentationRegistry.getArguments()
+                .getString("snapshotBenchmarkSize", "100000"));
+        movies = new ArrayList<Movie>(size);
+        for (int i = 0; i < size; ++i) {
+            movies.add(new Movie("Movie " + i, POSTER_BASE + "poster" + i + ".jpg",
+                    "Overview of movie " + i + ", long enough to look like a real synopsis "
+                            + "of a film that someone would want to watch.",
+                    Double.toString((i % 100) / 10.0), Integer.toString(1950 + i % 70)));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+        movies = null;
+        super.tearDown();
+    }
+
+    public void testSnapshotOpenToFirstItem() throws Exception {
+        File file = new File(dir, "movies.snapshot");
+        MovieSnapshot.write(file, movies);
+
+        Measurement measurement = new Measurement();
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+        Movie first = snapshot.get(0);
+        measurement.finish("snapshot", snapshot);
+        assertEquals(movies.get(0).getTitle(), first.getTitle());
+    }
+
+    public void testJsonOpenToFirstItem() throws Exception {
+        File file = new File(dir, "movies.json");
+        writeJson(file);
+
+        Measurement measurement = new Measurement();
+        List<Movie> parsed;
+        try {
+            parsed = parseJson(file);
+        } catch (OutOfMemoryError e) {
+            parsed = null;
+        }
+        if (parsed == null) {
+            EndToEndBenchmarkTest.report(getInstrumentation(), "json_open_to_first_item_ms", "OOM");
+            return;
+        }
+        Movie first = parsed.get(0);
+        measurement.finish("json", parsed);
+        assertEquals(movies.get(0).getTitle(), first.getTitle());
+    }
+
+    public void testSqliteOpenToFirstItem() throws Exception {
+        File file = new File(dir, "movies.db");
+        writeSqlite(file);
+
+        Measurement measurement = new Measurement();
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        Cursor cursor = db.rawQuery(
+                "SELECT title, poster, overview, vote_average, release_year FROM movies ORDER BY rowid",
+                null);
+        assertTrue(cursor.moveToFirst());
+        Movie first = new Movie(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                cursor.getString(3), Integer.toString(cursor.getInt(4)));
+        measurement.finish("sqlite", cursor);
+        cursor.close();
+        db.close();
+        assertEquals(movies.get(0).getTitle(), first.getTitle());
+    }
+
+    /*
+    * Time and memory from construction until finish(), the opened
+    * catalog is passed to finish() so it is still reachable when
+    * memory is sampled
+    * */
+    private class Measurement {
+        private final long heapBefore;
+        private final long pssBefore;
+        private final long start;
+
+        Measurement() {
+            collectGarbage();
+            heapBefore = usedHeap();
+            pssBefore = Debug.getPss();
+            start = SystemClock.elapsedRealtime();
+        }
+
+        void finish(String format, Object catalog) {
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            collectGarbage();
+            long heap = usedHeap() - heapBefore;
+            long pss = Debug.getPss() - pssBefore;
+            report(format + "_open_to_first_item_ms", elapsed);
+            report(format + "_heap_delta_kb", heap / 1024);
+            report(format + "_pss_delta_kb", pss);
+            assertNotNull(catalog);
+        }
+    }
+
+    private void report(String metric, long value) {
+        EndToEndBenchmarkTest.report(getInstrumentation(), metric, Long.toString(value));
+    }
+
+    private static void collectGarbage() {
+        Runtime.getRuntime().gc();
+        Runtime.getRuntime().runFinalization();
+        Runtime.getRuntime().gc();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // the same shape and fields as a TMDB discover page
+    private void writeJson(File file) throws IOException, JSONException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("{\"page\":1,\"results\":[");
+            for (int i = 0; i < movies.size(); ++i) {
+                Movie movie = movies.get(i);
+                JSONObject json = new JSONObject();
+                json.put("original_title", movie.getTitle());
+                json.put("poster_path", movie.getPoster().substring(POSTER_BASE.length() - 1));
+                json.put("overview", movie.getOverview());
+                json.put("vote_average", Double.parseDouble(movie.getVoteAverage()));
+                json.put("release_date", movie.getReleaseDate() + "-01-01");
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(json.toString());
+            }
+            out.write("]}");
+        } finally {
+            out.close();
+        }
+    }
+
+    // mirrors FetchMoviesTask reading and extracting a discover response
+    private List<Movie> parseJson(File file) throws IOException, JSONException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        StringBuilder buffer = new StringBuilder();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                buffer.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+
+        JSONArray results = new JSONObject(buffer.toString()).getJSONArray("results");
+        List<Movie> parsed = new ArrayList<Movie>(results.length());
+        for (int i = 0; i < results.length(); ++i) {
+            JSONObject movie = results.getJSONObject(i);
+            parsed.add(new Movie(movie.getString("original_title"),
+                    POSTER_BASE.substring(0, POSTER_BASE.length() - 1) + movie.getString("poster_path"),
+                    movie.getString("overview"),
+                    movie.getString("vote_average"),
+                    movie.getString("release_date").substring(0, 4)));
+        }
+        return parsed;
+    }
+
+    private void writeSqlite(File file) {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            db.execSQL("CREATE TABLE movies (title TEXT, poster TEXT, overview TEXT, "
+                    + "vote_average TEXT, release_year INTEGER)");
+            SQLiteStatement insert = db.compileStatement("INSERT INTO movies VALUES (?, ?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (Movie movie : movies) {
+                    insert.bindString(1, movie.getTitle());
+                    insert.bindString(2, movie.getPoster());
+                    insert.bindString(3, movie.getOverview());
+                    insert.bindString(4, movie.getVoteAverage());
+                    insert.bindLong(5, Long.parseLong(movie.getReleaseDate()));
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.close();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.mattbozelka.popularmovies;
+
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/*
+*
+* Local stand-in for the TMDB api and image hosts
+*
+* Serves the recorded responses under assets/standin:
+*   /3/discover/movie?sort_by=...  -> discover_<sort_by>.json
+*   /3/movie/<id>                  -> movie_detail.json
+*   /t/p/<anything>.png            -> poster.png
+*
+* Latency, jitter, error rate and payload sizes come from a Config,
+* usually built from instrumentation arguments. Every response is
+* counted so tests can report the bytes a scenario transferred
+*
+* The jitter and errors a request gets depend only on the seed, the
+* request path and how many times that path was requested before,
+* never on which handler thread runs first, so a seed replays the
+* same faults
+*
+* */
+
+public class StandInServer {
+
+    private static final String LOG_TAG = StandInServer.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String FIXTURES = "standin/";
+
+    /*
+    * Knobs for the responses, all settable with -e <name> <value>
+    * when running the instrumentation
+    * */
+    public static class Config {
+        // fixed delay before every response
+        public long latencyMs = 0;
+        // extra random delay between 0 and jitterMs
+        public long jitterMs = 0;
+        // chance between 0 and 1 of answering with a 500
+        public double errorRate = 0;
+        // results per discover page, 0 serves the recorded page as is
+        public int discoverResults = 0;
+        // poster payload size, roughly a real w185 poster by default
+        public int posterBytes = 16 * 1024;
+        public long seed = 42;
+
+        public static Config fromArguments(Bundle args) {
+            Config config = new Config();
+            config.latencyMs = Long.parseLong(args.getString("standInLatencyMs", "0"));
+            config.jitterMs = Long.parseLong(args.getString("standInJitterMs", "0"));
+            config.errorRate = Double.parseDouble(args.getString("standInErrorRate", "0"));
+            config.discoverResults = Integer.parseInt(args.getString("standInDiscoverResults", "0"));
+            config.posterBytes = Integer.parseInt(args.getString("standInPosterBytes",
+                    Integer.toString(config.posterBytes)));
+            config.seed = Long.parseLong(args.getString("standInSeed", "42"));
+            return config;
+        }
+    }
+
+    private final AssetManager assets;
+    private final Config config;
+    private final ConcurrentHashMap<String, AtomicInteger> timesRequested =
+            new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private byte[] poster;
+
+    public StandInServer(AssetManager assets, Config config) {
+        this.assets = assets;
+        this.config = config;
+    }
+
+    public void start() throws IOException {
+        poster = padPng(readAsset("poster.png"), config.posterBytes);
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        executor = Executors.newCachedThreadPool();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+    }
+
+    public void shutdown() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error closing server", e);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getApiBaseUrl() {
+        return getBaseUrl() + "3/";
+    }
+
+    // a fresh run name gives new poster urls, so nothing is served from an image cache
+    public String getImageBaseUrl(String run) {
+        return getBaseUrl() + "t/p/" + run + "/";
+    }
+
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    // requests that have been read but not fully answered yet
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public void resetCounters() {
+        bytesServed.set(0);
+        requestCount.set(0);
+    }
+
+    private String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    Log.e(LOG_TAG, "Error accepting connection", e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            String path = readRequestPath(socket.getInputStream());
+            if (path == null) {
+                return;
+            }
+            requestCount.incrementAndGet();
+            inFlight.incrementAndGet();
+            try {
+                respond(socket, path);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error serving request", e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing socket", e);
+            }
+        }
+    }
+
+    private void respond(Socket socket, String path) throws IOException {
+        Random random = randomFor(path);
+        delay(random);
+
+        int code = 200;
+        String contentType = "application/json";
+        byte[] body;
+        if (random.nextDouble() < config.errorRate) {
+            code = 500;
+            body = "{\"status_code\":11,\"status_message\":\"Internal error\"}".getBytes(UTF_8);
+        } else if (path.startsWith("/3/discover/movie")) {
+            body = discover(Uri.parse("http://localhost" + path).getQueryParameter("sort_by"));
+        } else if (path.startsWith("/3/movie/")) {
+            body = readAsset("movie_detail.json");
+        } else if (path.startsWith("/t/p/")) {
+            contentType = "image/png";
+            body = poster;
+        } else {
+            code = 404;
+            body = "{\"status_code\":34,\"status_message\":\"Not found\"}".getBytes(UTF_8);
+        }
+        if (body == null) {
+            code = 404;
+            body = new byte[0];
+        }
+
+        byte[] head = ("HTTP/1.1 " + code + (code == 200 ? " OK" : " Error") + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes(UTF_8);
+        OutputStream out = socket.getOutputStream();
+        out.write(head);
+        out.write(body);
+        out.flush();
+        bytesServed.addAndGet(head.length + body.length);
+    }
+
+    /*
+    * Randomness for one request, seeded from the seed, the path without
+    * the image run name and the number of earlier requests for that path
+    * */
+    private Random randomFor(String path) {
+        String key = path;
+        if (key.startsWith("/t/p/")) {
+            int runEnd = key.indexOf('/', "/t/p/".length());
+            key = runEnd < 0 ? key : "/t/p" + key.substring(runEnd);
+        }
+        AtomicInteger counter = timesRequested.get(key);
+        if (counter == null) {
+            timesRequested.putIfAbsent(key, new AtomicInteger());
+            counter = timesRequested.get(key);
+        }
+        int n = counter.getAndIncrement();
+        return new Random(config.seed * 1000003L + key.hashCode() * 31L + n);
+    }
+
+    // reads the request headers and returns the path of the request line
+    private String readRequestPath(InputStream in) throws IOException {
+        ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        int matched = 0;
+        int b;
+        while (matched < 4 && (b = in.read()) != -1) {
+            headers.write(b);
+            matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+        }
+        String[] requestLine = new String(headers.toByteArray(), UTF_8).split("\r\n", 2)[0].split(" ");
+        return requestLine.length < 2 ? null : requestLine[1];
+    }
+
+    private void delay(Random random) {
+        long delay = config.latencyMs;
+        if (config.jitterMs > 0) {
+            delay += (long) (random.nextDouble() * config.jitterMs);
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+    * The recorded page for the sort order, repeated or cut down to
+    * config.discoverResults. Repeated entries get their own poster path
+    * so every cell is a separate image request
+    * */
+    private byte[] discover(String sortBy) throws IOException {
+        byte[] recorded = readAsset("discover_" + sortBy + ".json");
+        if (recorded == null || config.discoverResults <= 0) {
+            return recorded;
+        }
+        try {
+            JSONObject page = new JSONObject(new String(recorded, UTF_8));
+            JSONArray results = page.getJSONArray("results");
+            JSONArray resized = new JSONArray();
+            for (int i = 0; i < config.discoverResults; ++i) {
+                JSONObject movie = new JSONObject(results.getJSONObject(i % results.length()).toString());
+                movie.put("poster_path", "/copy" + (i / results.length()) + movie.getString("poster_path"));
+                resized.put(movie);
+            }
+            page.put("results", resized);
+            page.put("total_results", config.discoverResults);
+            return page.toString().getBytes(UTF_8);
+        } catch (JSONException e) {
+            throw new IOException("Bad fixture for " + sortBy, e);
+        }
+    }
+
+    private byte[] readAsset(String name) throws IOException {
+        InputStream in;
+        try {
+            in = assets.open(FIXTURES + name);
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+    * Grows a png to the given size with a private ancillary chunk
+    * placed before IEND, decoders skip it so the image is unchanged
+    * */
+    private static byte[] padPng(byte[] png, int size) {
+        final int CHUNK_OVERHEAD = 12;
+        final int IEND_SIZE = 12;
+        int padding = size - png.length - CHUNK_OVERHEAD;
+        if (padding <= 0) {
+            return png;
+        }
+
+        byte[] type = "paDd".getBytes(UTF_8);
+        byte[] data = new byte[padding];
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write(png, 0, png.length - IEND_SIZE);
+        writeInt(out, padding);
+        out.write(type, 0, type.length);
+        out.write(data, 0, data.length);
+        writeInt(out, (int) crc.getValue());
+        out.write(png, png.length - IEND_SIZE, IEND_SIZE);
+        return out.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
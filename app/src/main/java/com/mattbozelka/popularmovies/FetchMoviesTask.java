@@ -9,6 +9,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -37,13 +38,21 @@ import java.util.Locale;
 public class FetchMoviesTask extends AsyncTask<String, Void, List<Movie>> {
 
     public AsyncResponse delegate;
+    private final File snapshotFile;
+    private final String apiBaseUrl;
+    private final String moviePosterBase;
     private final String LOG_TAG = FetchMoviesTask.class.getSimpleName();
     private final String API_KEY = "YOUR_API_KEY";
-    private final String MOVIE_POSTER_BASE = "http://image.tmdb.org/t/p/";
     private final String MOVIE_POSTER_SIZE = "w185";
 
-    public FetchMoviesTask(AsyncResponse delegate){
+    // fetches from the given endpoints, see TmdbEndpoints, and stores the
+    // fetched movies as a snapshot for the next cold start when snapshotFile is set
+    public FetchMoviesTask(AsyncResponse delegate, File snapshotFile,
+                           String apiBaseUrl, String moviePosterBase){
         this.delegate = delegate;
+        this.snapshotFile = snapshotFile;
+        this.apiBaseUrl = apiBaseUrl;
+        this.moviePosterBase = moviePosterBase;
     }
 
     @Override
@@ -61,7 +70,7 @@ public class FetchMoviesTask extends AsyncTask<String, Void, List<Movie>> {
 
         try {
 
-            final String BASE_URL = "http://api.themoviedb.org/3/discover/movie?";
+            final String BASE_URL = apiBaseUrl + "discover/movie?";
             final String SORT_BY = "sort_by";
             final String KEY = "api_key";
             String sortBy = params[0];
@@ -109,14 +118,24 @@ public class FetchMoviesTask extends AsyncTask<String, Void, List<Movie>> {
             }
         }
 
+        List<Movie> movies;
         try {
-            return extractData(moviesJsonStr);
+            movies = extractData(moviesJsonStr);
         } catch (JSONException e) {
             Log.e(LOG_TAG, e.getMessage(), e);
             e.printStackTrace();
+            return null;
         }
 
-        return null;
+        if (snapshotFile != null) {
+            try {
+                MovieSnapshot.write(snapshotFile, movies);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error writing snapshot", e);
+            }
+        }
+
+        return movies;
     }
 
     @Override
@@ -160,7 +179,7 @@ public class FetchMoviesTask extends AsyncTask<String, Void, List<Movie>> {
             // movie object with all the required data
             JSONObject movie = moviesArray.getJSONObject(i);
             String title = movie.getString(ORIGINAL_TITLE);
-            String poster = MOVIE_POSTER_BASE + MOVIE_POSTER_SIZE + movie.getString(POSTER_PATH);
+            String poster = moviePosterBase + MOVIE_POSTER_SIZE + movie.getString(POSTER_PATH);
             String overview = movie.getString(OVERVIEW);
             String voteAverage = movie.getString(VOTE_AVERAGE);
             String releaseDate = getYear(movie.getString(RELEASE_DATE));
@@ -4,45 +4,75 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.ImageView;
 
 import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /*
 *
 * Custom ImageAdapter used to
 * used to create the Grid of movie posters
 *
+* Backed directly by the list of movies so a MovieSnapshot
+* is only read for the cells that actually get bound
+*
 * */
 
-public class ImageAdapter extends ArrayAdapter<String> {
+public class ImageAdapter extends BaseAdapter {
 
     private LayoutInflater mLayoutInflater;
     private Context context;
     private int layoutId;
     private int imageViewID;
+    private List<Movie> movies = new ArrayList<Movie>();
 
-    public ImageAdapter(Context context, int layoutId, int imageViewID, ArrayList<String> urls) {
-        super(context, 0, urls);
+    public ImageAdapter(Context context, int layoutId, int imageViewID) {
         this.mLayoutInflater = LayoutInflater.from(context);
         this.context = context;
         this.layoutId = layoutId;
         this.imageViewID = imageViewID;
     }
 
+    public void setMovies(List<Movie> movies) {
+        this.movies = movies;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return movies.size();
+    }
+
+    @Override
+    public Movie getItem(int position) {
+        return movies.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    // the poster url without creating a Movie when backed by a snapshot
+    public String getPoster(int position) {
+        if (movies instanceof MovieSnapshot) {
+            return ((MovieSnapshot) movies).getPoster(position);
+        }
+        return movies.get(position).getPoster();
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
         View v = convertView;
-        String url;
         if (v == null) {
             v = mLayoutInflater.inflate(layoutId, parent, false);
         }
         ImageView imageView = (ImageView) v.findViewById(imageViewID);
-        url = getItem(position);
-        Picasso.with(context).load(url).into(imageView);
+        Picasso.with(context).load(getPoster(position)).into(imageView);
         return v;
     }
 }
@@ -7,18 +7,33 @@ import android.support.v7.app.ActionBarActivity;
 import android.view.Menu;
 import android.view.MenuItem;
 
+import java.util.List;
+
 /*
 *
 * Main activity and entry point into the app
 * Inflates MovieListFragment for the main UI
 *
+* On large screens MovieDetailFragment is hosted beside the
+* grid and rebound when the selection changes, otherwise a tap
+* launches MovieDetailActivity
+*
 * */
 
-public class MainActivity extends ActionBarActivity {
+public class MainActivity extends ActionBarActivity implements MovieSelectionListener {
 
     private final String LOG_TAG = MainActivity.class.getSimpleName();
+    private final String DETAIL_FRAGMENT_TAG = "detailFragment";
+    private final String SELECTED_MOVIE = "selected_movie";
+    private final String SELECTED_SORT_ORDER = "selected_sort_order";
     private FragmentManager fragmentManager = getFragmentManager();
     MovieListFragment fragment;
+    MovieDetailFragment detailFragment;
+    // kept in single pane too so it is shown again when two panes come back
+    Movie selectedMovie;
+    // sort order of the list selectedMovie was picked from
+    String selectedSortOrder;
+    boolean twoPane;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,9 +48,59 @@ public class MainActivity extends ActionBarActivity {
         }else{
             fragment = (MovieListFragment) fragmentManager.getFragment(
                     savedInstanceState, "fragmentContent");
+            selectedMovie = savedInstanceState.getParcelable(SELECTED_MOVIE);
+            selectedSortOrder = savedInstanceState.getString(SELECTED_SORT_ORDER);
+        }
+
+        twoPane = findViewById(R.id.movie_detail_container) != null;
+        detailFragment = (MovieDetailFragment) fragmentManager.findFragmentByTag(DETAIL_FRAGMENT_TAG);
+
+        if (twoPane && detailFragment == null) {
+            detailFragment = new MovieDetailFragment();
+            if (selectedMovie != null) {
+                detailFragment.bind(selectedMovie);
+            }
+            fragmentManager.beginTransaction()
+                    .add(R.id.movie_detail_container, detailFragment, DETAIL_FRAGMENT_TAG)
+                    .commit();
+        } else if (!twoPane && detailFragment != null) {
+            // restored from a two pane layout, this one has nowhere to put it,
+            // selectedMovie still holds what it was showing
+            fragmentManager.beginTransaction()
+                    .remove(detailFragment)
+                    .commit();
+            fragmentManager.executePendingTransactions();
+            detailFragment = null;
         }
     }
 
+    @Override
+    public void onMovieSelected(List<Movie> movies, int position) {
+        Movie details = movies.get(position);
+        selectedMovie = details;
+
+        if (twoPane) {
+            detailFragment.bind(details);
+        } else {
+            Intent intent = new Intent(this, MovieDetailActivity.class)
+                    .putExtra(MovieDetailFragment.MOVIE_DETAILS, details);
+            startActivity(intent);
+        }
+    }
+
+    @Override
+    public void onMoviesLoaded(List<Movie> movies, String sortOrder) {
+        // never leave the detail pane empty or showing a movie from another sort order
+        if (movies.size() > 0
+                && (selectedMovie == null || !sortOrder.equals(selectedSortOrder))) {
+            selectedMovie = movies.get(0);
+            if (twoPane) {
+                detailFragment.bind(selectedMovie);
+            }
+        }
+        selectedSortOrder = sortOrder;
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
@@ -58,6 +123,10 @@ public class MainActivity extends ActionBarActivity {
     protected void onSaveInstanceState(Bundle savedInstanceState) {
         super.onSaveInstanceState(savedInstanceState);
         fragmentManager.putFragment(savedInstanceState, "fragmentContent", fragment);
+        if (selectedMovie != null) {
+            savedInstanceState.putParcelable(SELECTED_MOVIE, selectedMovie);
+            savedInstanceState.putString(SELECTED_SORT_ORDER, selectedSortOrder);
+        }
     }
 
 }
@@ -8,6 +8,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import com.squareup.picasso.Picasso;
@@ -16,13 +17,24 @@ import com.squareup.picasso.Picasso;
 *
 * the main UI of MovieDetailActivity and handles the logic for the view
 *
+* In the two pane layout MainActivity keeps this fragment and calls bind()
+* for every selection, so the views are inflated once and only rebound
+*
 * */
 
 public class MovieDetailFragment extends Fragment {
 
     private final String LOG_TAG = MovieDetailFragment.class.getSimpleName();
+    public static final String MOVIE_DETAILS = "movies_details";
     Movie movie;
 
+    private TextView title;
+    private ImageView poster;
+    private TextView releaseDate;
+    private TextView ratings;
+    private TextView overview;
+    private ScrollView scrollView;
+
     public MovieDetailFragment() {
         setHasOptionsMenu(true);
     }
@@ -33,24 +45,45 @@ public class MovieDetailFragment extends Fragment {
                              Bundle savedInstanceState) {
         View rootView = inflater.inflate(R.layout.fragment_movie_detail, container, false);
 
-        Intent intent = getActivity().getIntent();
-        if (intent != null && intent.hasExtra("movies_details")) {
+        title = (TextView) rootView.findViewById(R.id.movie_title_view);
+        poster = (ImageView) rootView.findViewById(R.id.poster_image_view);
+        releaseDate = (TextView) rootView.findViewById(R.id.release_date);
+        ratings = (TextView) rootView.findViewById(R.id.ratings_view);
+        overview = (TextView) rootView.findViewById(R.id.synopsis_view);
+        scrollView = (ScrollView) rootView.findViewById(R.id.scroll_view);
 
-            movie = (Movie)intent.getParcelableExtra("movies_details");
-            DisplayInfo(rootView);
+        Intent intent = getActivity().getIntent();
+        if (savedInstanceState != null && savedInstanceState.containsKey(MOVIE_DETAILS)) {
+            movie = savedInstanceState.getParcelable(MOVIE_DETAILS);
+        } else if (movie == null && intent != null && intent.hasExtra(MOVIE_DETAILS)) {
+            movie = (Movie)intent.getParcelableExtra(MOVIE_DETAILS);
+        }
 
+        if (movie != null) {
+            DisplayInfo();
         }
 
         return rootView;
     }
 
-    private void DisplayInfo(View v){
-        TextView title = (TextView) v.findViewById(R.id.movie_title_view);
-        ImageView poster = (ImageView) v.findViewById(R.id.poster_image_view);
-        TextView releaseDate = (TextView) v.findViewById(R.id.release_date);
-        TextView ratings = (TextView) v.findViewById(R.id.ratings_view);
-        TextView overview = (TextView) v.findViewById(R.id.synopsis_view);
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (movie != null) {
+            outState.putParcelable(MOVIE_DETAILS, movie);
+        }
+    }
+
+    // shows a new movie in the existing views
+    public void bind(Movie movie) {
+        this.movie = movie;
+        if (title != null) {
+            DisplayInfo();
+            scrollView.scrollTo(0, 0);
+        }
+    }
 
+    private void DisplayInfo(){
         title.setText(movie.getTitle());
         Picasso.with(getActivity()).load(movie.getPoster()).into(poster);
         releaseDate.setText(movie.getReleaseDate());
@@ -1,7 +1,7 @@
 package com.mattbozelka.popularmovies;
 
+import android.app.Activity;
 import android.app.Fragment;
-import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
@@ -12,6 +12,7 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.GridView;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,15 +26,36 @@ public class MovieListFragment extends Fragment{
 
     private final String LOG_TAG = MovieListFragment.class.getSimpleName();
     private final String STORED_MOVIES = "stored_movies";
+    private final String STORED_SNAPSHOT_SORT = "stored_snapshot_sort";
     private SharedPreferences prefs;
     private ImageAdapter mMoviePosterAdapter;
+    private MovieSelectionListener listener;
     String sortOrder;
     List<Movie> movies = new ArrayList<Movie>();
+    // true while the grid shows a snapshot that still needs a refresh
+    boolean fromSnapshot = false;
 
     public MovieListFragment() {
         setHasOptionsMenu(true);
     }
 
+    @Override
+    public void onAttach(Activity activity) {
+        super.onAttach(activity);
+        try {
+            listener = (MovieSelectionListener) activity;
+        } catch (ClassCastException e) {
+            throw new ClassCastException(activity.toString()
+                    + " must implement MovieSelectionListener");
+        }
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        listener = null;
+    }
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -42,11 +64,17 @@ public class MovieListFragment extends Fragment{
         sortOrder = prefs.getString(getString(R.string.display_preferences_sort_order_key),
                 getString(R.string.display_preferences_sort_default_value));
 
-        if(savedInstanceState != null){
+        if(savedInstanceState != null && savedInstanceState.containsKey(STORED_SNAPSHOT_SORT)){
+            // the grid was showing a snapshot, map it again instead of parceling it
+            openSnapshot(savedInstanceState.getString(STORED_SNAPSHOT_SORT));
+        }else if(savedInstanceState != null){
             ArrayList<Movie> storedMovies = new ArrayList<Movie>();
             storedMovies = savedInstanceState.<Movie>getParcelableArrayList(STORED_MOVIES);
             movies.clear();
             movies.addAll(storedMovies);
+        }else{
+            // show the last fetched catalog straight away while the fresh one loads
+            openSnapshot(sortOrder);
         }
     }
 
@@ -63,8 +91,7 @@ public class MovieListFragment extends Fragment{
         mMoviePosterAdapter = new ImageAdapter(
                 getActivity(),
                 R.layout.list_item_poster,
-                R.id.list_item_poster_imageview,
-                new ArrayList<String>());
+                R.id.list_item_poster_imageview);
 
         View rootView = inflater.inflate(R.layout.fragment_movie_list, container, false);
         GridView gridView = (GridView) rootView.findViewById(R.id.main_movie_grid);
@@ -74,10 +101,7 @@ public class MovieListFragment extends Fragment{
 
             @Override
             public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                Movie details = movies.get(position);
-                Intent intent = new Intent(getActivity(), MovieDetailActivity.class)
-                        .putExtra("movies_details", details);
-                startActivity(intent);
+                listener.onMovieSelected(movies, position);
             }
 
         });
@@ -95,6 +119,9 @@ public class MovieListFragment extends Fragment{
 
         if(movies.size() > 0 && prefSortOrder.equals(sortOrder)) {
             updatePosterAdapter();
+            if(fromSnapshot) {
+                getMovies();
+            }
         }else{
             sortOrder = prefSortOrder;
             getMovies();
@@ -104,28 +131,48 @@ public class MovieListFragment extends Fragment{
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
+        if(movies instanceof MovieSnapshot) {
+            outState.putString(STORED_SNAPSHOT_SORT, sortOrder);
+            return;
+        }
         ArrayList<Movie> storedMovies = new ArrayList<Movie>();
         storedMovies.addAll(movies);
         outState.putParcelableArrayList(STORED_MOVIES, storedMovies);
     }
 
+    private void openSnapshot(String sort) {
+        MovieSnapshot snapshot = MovieSnapshot.open(getSnapshotFile(sort));
+        if(snapshot != null && snapshot.size() > 0) {
+            movies = snapshot;
+            sortOrder = sort;
+            fromSnapshot = true;
+        }
+    }
+
     private void getMovies() {
+        fromSnapshot = false;
         FetchMoviesTask fetchMoviesTask = new FetchMoviesTask(new AsyncResponse() {
             @Override
             public void onTaskCompleted(List<Movie> results) {
-                movies.clear();
-                movies.addAll(results);
+                // a snapshot is read only so always swap in a new list
+                movies = new ArrayList<Movie>(results);
                 updatePosterAdapter();
             }
-        });
+        }, getSnapshotFile(sortOrder),
+                TmdbEndpoints.getApiBaseUrl(getActivity()),
+                TmdbEndpoints.getImageBaseUrl(getActivity()));
         fetchMoviesTask.execute(sortOrder);
     }
 
-    // updates the ArrayAdapter of poster images
+    private File getSnapshotFile(String sort) {
+        return new File(getActivity().getCacheDir(), "movies_" + sort + ".snapshot");
+    }
+
+    // points the poster adapter at the current list of movies
     private void updatePosterAdapter() {
-        mMoviePosterAdapter.clear();
-        for(Movie movie : movies) {
-            mMoviePosterAdapter.add(movie.getPoster());
+        mMoviePosterAdapter.setMovies(movies);
+        if(listener != null) {
+            listener.onMoviesLoaded(movies, sortOrder);
         }
     }
 
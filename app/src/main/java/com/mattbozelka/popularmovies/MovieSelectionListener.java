@@ -0,0 +1,19 @@
+package com.mattbozelka.popularmovies;
+
+import java.util.List;
+
+/*
+*
+* Custom interface implemented by the activity
+* hosting MovieListFragment to handle a movie
+* being picked from the grid and the grid being filled
+*
+* */
+
+public interface MovieSelectionListener {
+
+    void onMovieSelected( List<Movie> movies, int position );
+
+    void onMoviesLoaded( List<Movie> movies, String sortOrder );
+
+}
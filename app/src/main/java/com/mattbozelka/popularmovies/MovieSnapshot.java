@@ -0,0 +1,256 @@
+package com.mattbozelka.popularmovies;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.List;
+
+/*
+*
+* Read only list of movies backed by a memory-mapped
+* binary snapshot of the last fetched catalog
+*
+* File layout (big endian):
+*   header  - magic, version, movie count, heap length in bytes
+*   records - one fixed-width record per movie holding the heap
+*             offsets of title, poster, overview and vote average
+*             plus the release year as an int
+*   heap    - length prefixed UTF-8 strings
+*
+* Movie objects are only created when get() is called for a position,
+* so restoring the grid does not decode the whole catalog up front.
+* open() only checks the header, so each string is bounds checked
+* when it is read. A string outside the heap marks the snapshot as
+* corrupt, reads as null and deletes the file so the next fetch
+* replaces it
+*
+* */
+
+public class MovieSnapshot extends AbstractList<Movie> {
+
+    private static final String LOG_TAG = MovieSnapshot.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x504D534E;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 20;
+
+    private static final int TITLE = 0;
+    private static final int POSTER = 4;
+    private static final int OVERVIEW = 8;
+    private static final int VOTE_AVERAGE = 12;
+    private static final int RELEASE_YEAR = 16;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int heapStart;
+    private final int heapLength;
+    private final Movie[] decoded;
+    private volatile boolean corrupt;
+
+    private MovieSnapshot(File file, ByteBuffer buffer, int count, int heapLength) {
+        this.file = file;
+        this.buffer = buffer;
+        this.count = count;
+        this.heapStart = HEADER_SIZE + count * RECORD_SIZE;
+        this.heapLength = heapLength;
+        this.decoded = new Movie[count];
+    }
+
+    @Override
+    public Movie get(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + count);
+        }
+        Movie movie = decoded[position];
+        if (movie == null) {
+            int record = recordOffset(position);
+            movie = new Movie(
+                    readString(buffer.getInt(record + TITLE)),
+                    readString(buffer.getInt(record + POSTER)),
+                    readString(buffer.getInt(record + OVERVIEW)),
+                    readString(buffer.getInt(record + VOTE_AVERAGE)),
+                    Integer.toString(buffer.getInt(record + RELEASE_YEAR)));
+            decoded[position] = movie;
+        }
+        return movie;
+    }
+
+    // reads only the poster url so the grid can be filled without creating Movies
+    public String getPoster(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + count);
+        }
+        Movie movie = decoded[position];
+        if (movie != null) {
+            return movie.getPoster();
+        }
+        return readString(buffer.getInt(recordOffset(position) + POSTER));
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    // true once a read found a string outside the heap
+    public boolean isCorrupt() {
+        return corrupt;
+    }
+
+    private int recordOffset(int position) {
+        return HEADER_SIZE + position * RECORD_SIZE;
+    }
+
+    private String readString(int heapOffset) {
+        if (heapOffset < 0 || (long) heapOffset + 4 > heapLength) {
+            return markCorrupt();
+        }
+        int length = buffer.getInt(heapStart + heapOffset);
+        if (length < 0 || (long) heapOffset + 4 + length > heapLength) {
+            return markCorrupt();
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(heapStart + heapOffset + 4);
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private String markCorrupt() {
+        if (!corrupt) {
+            corrupt = true;
+            Log.e(LOG_TAG, "Discarding corrupt snapshot " + file);
+            file.delete();
+        }
+        return null;
+    }
+
+    /*
+    * Maps the snapshot at the given path, returns null when it is
+    * missing or unreadable. A snapshot from another version or whose
+    * record table and heap do not match the file size is deleted so
+    * the next fetch replaces it
+    * */
+    public static MovieSnapshot open(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        MovieSnapshot snapshot = null;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length >= HEADER_SIZE && length <= Integer.MAX_VALUE) {
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                if (isValid(buffer)) {
+                    snapshot = new MovieSnapshot(file, buffer, buffer.getInt(8), buffer.getInt(12));
+                }
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error opening snapshot", e);
+            return null;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (final IOException e) {
+                    Log.e(LOG_TAG, "Error closing snapshot", e);
+                }
+            }
+        }
+
+        if (snapshot == null) {
+            Log.e(LOG_TAG, "Discarding invalid snapshot " + file);
+            file.delete();
+        }
+        return snapshot;
+    }
+
+    /*
+    * Checks the header only, so opening does not page in the
+    * heap. The record table and heap have to fill the file exactly
+    * */
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        int count = buffer.getInt(8);
+        int heapLength = buffer.getInt(12);
+        return count >= 0 && heapLength >= 0
+                && HEADER_SIZE + (long) count * RECORD_SIZE + heapLength == buffer.limit();
+    }
+
+    /*
+    * Writes the movies to a temporary file and renames it over
+    * the snapshot so readers never see a partially written file
+    * */
+    public static void write(File file, List<Movie> movies) throws IOException {
+        int count = movies.size();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(count * RECORD_SIZE);
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        DataOutputStream heapOut = new DataOutputStream(heap);
+
+        for (Movie movie : movies) {
+            recordsOut.writeInt(writeString(heapOut, movie.getTitle()));
+            recordsOut.writeInt(writeString(heapOut, movie.getPoster()));
+            recordsOut.writeInt(writeString(heapOut, movie.getOverview()));
+            recordsOut.writeInt(writeString(heapOut, movie.getVoteAverage()));
+            recordsOut.writeInt(parseYear(movie.getReleaseDate()));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            DataOutputStream headerOut = new DataOutputStream(out);
+            headerOut.writeInt(MAGIC);
+            headerOut.writeInt(VERSION);
+            headerOut.writeInt(count);
+            headerOut.writeInt(heap.size());
+            headerOut.flush();
+            records.writeTo(out);
+            heap.writeTo(out);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace snapshot " + file);
+        }
+    }
+
+    // appends a length prefixed string to the heap and returns its offset
+    private static int writeString(DataOutputStream heapOut, String value) throws IOException {
+        int offset = heapOut.size();
+        byte[] bytes = (value == null ? "" : value).getBytes(UTF_8);
+        heapOut.writeInt(bytes.length);
+        heapOut.write(bytes);
+        return offset;
+    }
+
+    private static int parseYear(String releaseDate) {
+        try {
+            return Integer.parseInt(releaseDate);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mattbozelka.popularmovies;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/*
+*
+* Resolves the TMDB api and image base urls
+*
+* Defaults to the urls the build was configured with. Debug builds
+* also honour overrides stored in the default shared preferences, which
+* lets instrumentation tests point the app at a local stand-in server
+* at runtime
+*
+* */
+
+public class TmdbEndpoints {
+
+    private TmdbEndpoints() {
+    }
+
+    public static String getApiBaseUrl(Context context) {
+        return getUrl(context, R.string.endpoint_api_base_url_key, BuildConfig.TMDB_API_BASE_URL);
+    }
+
+    public static String getImageBaseUrl(Context context) {
+        return getUrl(context, R.string.endpoint_image_base_url_key, BuildConfig.TMDB_IMAGE_BASE_URL);
+    }
+
+    private static String getUrl(Context context, int keyId, String defaultUrl) {
+        if (!BuildConfig.DEBUG) {
+            return defaultUrl;
+        }
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getString(context.getString(keyId), defaultUrl);
+    }
+}
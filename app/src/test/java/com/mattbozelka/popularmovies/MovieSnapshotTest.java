@@ -0,0 +1,198 @@
+package com.mattbozelka.popularmovies;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips and corrupt file handling for the binary catalog snapshot
+ */
+public class MovieSnapshotTest {
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsMovies() throws IOException {
+        List<Movie> movies = Arrays.asList(
+                new Movie("Amélie", "http://image.tmdb.org/t/p/w185/amelie.jpg",
+                        "Une jeune serveuse à Montmartre", "7.9", "2001"),
+                new Movie("千と千尋の神隠し", "http://image.tmdb.org/t/p/w185/spirited.jpg",
+                        "🐉 bath house", "8.5", "2001"),
+                new Movie("Plain", "http://image.tmdb.org/t/p/w185/plain.jpg",
+                        "overview", "6", "1999"));
+        File file = folder.newFile("movies.snapshot");
+
+        MovieSnapshot.write(file, movies);
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+
+        assertNotNull(snapshot);
+        assertEquals(movies.size(), snapshot.size());
+        for (int i = 0; i < movies.size(); ++i) {
+            assertEquals(movies.get(i).getPoster(), snapshot.getPoster(i));
+            assertMovieEquals(movies.get(i), snapshot.get(i));
+        }
+        assertFalse(snapshot.isCorrupt());
+    }
+
+    @Test
+    public void storesNullAndEmptyStringsAsEmpty() throws IOException {
+        List<Movie> movies = Arrays.asList(
+                new Movie(null, "", null, "", "2015"));
+        File file = folder.newFile("movies.snapshot");
+
+        MovieSnapshot.write(file, movies);
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+
+        assertNotNull(snapshot);
+        Movie movie = snapshot.get(0);
+        assertEquals("", movie.getTitle());
+        assertEquals("", movie.getPoster());
+        assertEquals("", movie.getOverview());
+        assertEquals("", movie.getVoteAverage());
+        assertEquals("2015", movie.getReleaseDate());
+    }
+
+    @Test
+    public void roundTripsEmptyList() throws IOException {
+        File file = folder.newFile("movies.snapshot");
+
+        MovieSnapshot.write(file, new ArrayList<Movie>());
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+
+        assertNotNull(snapshot);
+        assertEquals(0, snapshot.size());
+    }
+
+    @Test
+    public void missingFileOpensAsNull() {
+        assertNull(MovieSnapshot.open(new File(folder.getRoot(), "missing.snapshot")));
+    }
+
+    @Test
+    public void rejectsBadMagic() throws IOException {
+        File file = writeSample();
+        overwriteInt(file, 0, 0xCAFEBABE);
+
+        assertNull(MovieSnapshot.open(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsWrongVersion() throws IOException {
+        File file = writeSample();
+        overwriteInt(file, 4, 3);
+
+        assertNull(MovieSnapshot.open(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsTruncatedRecordTable() throws IOException {
+        File file = writeSample();
+        truncate(file, HEADER_SIZE + RECORD_SIZE + 4);
+
+        assertNull(MovieSnapshot.open(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsTruncatedHeap() throws IOException {
+        File file = writeSample();
+        truncate(file, file.length() - 3);
+
+        assertNull(MovieSnapshot.open(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsWrongHeapLength() throws IOException {
+        File file = writeSample();
+        overwriteInt(file, 12, 1);
+
+        assertNull(MovieSnapshot.open(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void negativeStringLengthMarksSnapshotCorrupt() throws IOException {
+        File file = writeSample();
+        // the first string in the heap is the title of the first movie
+        overwriteInt(file, HEADER_SIZE + 2 * RECORD_SIZE, -1);
+
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+        assertNotNull(snapshot);
+        assertFalse(snapshot.isCorrupt());
+
+        assertNull(snapshot.get(0).getTitle());
+        assertTrue(snapshot.isCorrupt());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void offsetOutsideHeapMarksSnapshotCorrupt() throws IOException {
+        File file = writeSample();
+        // poster offset of the second movie
+        overwriteInt(file, HEADER_SIZE + RECORD_SIZE + 4, Integer.MAX_VALUE);
+
+        MovieSnapshot snapshot = MovieSnapshot.open(file);
+        assertNotNull(snapshot);
+
+        assertEquals("http://image.tmdb.org/t/p/w185/first.jpg", snapshot.getPoster(0));
+        assertFalse(snapshot.isCorrupt());
+        assertNull(snapshot.getPoster(1));
+        assertTrue(snapshot.isCorrupt());
+        assertFalse(file.exists());
+    }
+
+    private File writeSample() throws IOException {
+        File file = folder.newFile("movies.snapshot");
+        MovieSnapshot.write(file, Arrays.asList(
+                new Movie("First", "http://image.tmdb.org/t/p/w185/first.jpg", "one", "7.1", "2014"),
+                new Movie("Second", "http://image.tmdb.org/t/p/w185/second.jpg", "two", "6.4", "2015")));
+        return file;
+    }
+
+    private static void overwriteInt(File file, long position, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void assertMovieEquals(Movie expected, Movie actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getPoster(), actual.getPoster());
+        assertEquals(expected.getOverview(), actual.getOverview());
+        assertEquals(expected.getVoteAverage(), actual.getVoteAverage());
+        assertEquals(expected.getReleaseDate(), actual.getReleaseDate());
+    }
+}